@@ -0,0 +1,350 @@
+package plc.examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable storage for {@link Account} balances, using a memory-mapped journal
+ * together with compact snapshots.
+ *
+ * Every change to an account created by {@link #create(int)} appends a fixed
+ * size record to the journal containing the account id and its new balance.
+ * Records are written directly into the mapped file and only flushed to disk
+ * by {@link #commit()}, which batches all records appended so far into a
+ * single flush shared by any concurrent callers (group commit).
+ *
+ * When the journal fills up (or on {@link #snapshot()}) all balances are
+ * written to a snapshot and the journal is restarted under a new epoch, so
+ * recovery loads the latest snapshot and only replays the records of the
+ * matching epoch. Records left over from previous epochs, as well as torn
+ * records failing their checksum, mark the end of the journal.
+ *
+ * Both files are written in big-endian byte order, so they can be moved
+ * between machines.
+ */
+public final class AccountJournal implements Closeable {
+
+    private static final String JOURNAL = "accounts.journal";
+    private static final String SNAPSHOT = "accounts.snapshot";
+    private static final int MAGIC = 0x41434354;
+    private static final int RECORD = 16;
+    private static final int DEFAULT_CAPACITY = 1 << 22;
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final MappedByteBuffer journal;
+    private final List<JournaledAccount> accounts;
+    private final Object flushLock = new Object();
+    private final AtomicLong flushed = new AtomicLong();
+    private int epoch;
+    private int position;
+    private long appended;
+    private boolean closed;
+
+    private AccountJournal(Path directory, FileChannel channel, MappedByteBuffer journal, int epoch) {
+        this.directory = directory;
+        this.channel = channel;
+        this.journal = journal;
+        this.accounts = new ArrayList<>();
+        this.epoch = epoch;
+    }
+
+    /**
+     * Opens (or creates) the journal in the given directory with the default
+     * capacity, recovering all accounts stored there.
+     */
+    public static AccountJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens (or creates) the journal in the given directory, holding up to
+     * capacity records before a snapshot is taken. An existing journal larger
+     * than this is kept at its size, so no records are lost on recovery.
+     * Recovery loads the snapshot
+     * (if any) and replays the journal tail written since, then takes a new
+     * snapshot so uncommitted records past the tail can never be replayed.
+     */
+    public static AccountJournal open(Path directory, int capacity) throws IOException {
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE / RECORD) {
+            throw new IllegalArgumentException("Invalid journal capacity " + capacity + ".");
+        }
+        Files.createDirectories(directory);
+        int epoch = 1;
+        int[] balances = new int[0];
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot)).order(ByteOrder.BIG_ENDIAN);
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+                throw new IOException("Invalid account snapshot " + snapshot + ".");
+            }
+            epoch = buffer.getInt();
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() != count * 4L) {
+                throw new IOException("Truncated account snapshot " + snapshot + ".");
+            }
+            balances = new int[count];
+            buffer.asIntBuffer().get(balances);
+        }
+        Path path = directory.resolve(JOURNAL);
+        boolean created = !Files.exists(path);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size() / RECORD * RECORD, (long) capacity * RECORD);
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Invalid account journal size " + channel.size() + ".");
+        }
+        MappedByteBuffer journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        journal.order(ByteOrder.BIG_ENDIAN);
+        AccountJournal result = new AccountJournal(directory, channel, journal, epoch);
+        try {
+            if (created) {
+                channel.force(true);
+                syncDirectory(directory);
+            }
+            result.recover(balances);
+            result.snapshot();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return result;
+    }
+
+    private void recover(int[] balances) {
+        int count = balances.length;
+        while (position + RECORD <= journal.capacity()) {
+            int recordEpoch = journal.getInt(position);
+            int id = journal.getInt(position + 4);
+            int balance = journal.getInt(position + 8);
+            if (recordEpoch != epoch || journal.getInt(position + 12) != checksum(recordEpoch, id, balance)
+                    || id < 0 || id > count) {
+                break;
+            }
+            if (id == balances.length) {
+                balances = Arrays.copyOf(balances, Math.max(16, balances.length * 2));
+            }
+            balances[id] = balance;
+            count = Math.max(count, id + 1);
+            position += RECORD;
+        }
+        for (int id = 0; id < count; id++) {
+            accounts.add(new JournaledAccount(id, balances[id]));
+        }
+    }
+
+    /**
+     * Creates a new journaled account with the given starting balance.
+     */
+    public synchronized Account create(int balance) {
+        reserve();
+        JournaledAccount account = new JournaledAccount(accounts.size(), balance);
+        accounts.add(account);
+        append(account);
+        return account;
+    }
+
+    public synchronized Account get(int id) {
+        return accounts.get(id);
+    }
+
+    public synchronized int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Flushes all records appended so far to disk. Concurrent callers waiting
+     * on the same flush are satisfied by a single {@link MappedByteBuffer#force()}.
+     */
+    public void commit() throws IOException {
+        long target;
+        synchronized (this) {
+            ensureOpen();
+            target = appended;
+        }
+        synchronized (flushLock) {
+            if (flushed.get() >= target) {
+                return;
+            }
+            long end;
+            synchronized (this) {
+                end = appended;
+            }
+            journal.force();
+            flushed.accumulateAndGet(end, Math::max);
+        }
+    }
+
+    /**
+     * Writes all balances to a new snapshot and restarts the journal under the
+     * next epoch. The snapshot and its rename are made durable (including the
+     * directory entry) before any record of the new epoch can overwrite the
+     * journal.
+     */
+    public synchronized void snapshot() throws IOException {
+        ensureOpen();
+        ByteBuffer buffer = ByteBuffer.allocate(12 + accounts.size() * 4).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC).putInt(epoch + 1).putInt(accounts.size());
+        for (JournaledAccount account : accounts) {
+            buffer.putInt(account.getBalance());
+        }
+        buffer.flip();
+        Path temp = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(directory);
+        epoch++;
+        position = 0;
+        flushed.accumulateAndGet(appended, Math::max);
+    }
+
+    /**
+     * Commits all records and closes the journal. Accounts obtained from this
+     * journal can no longer be modified afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        try {
+            commit();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Account journal is closed.");
+        }
+    }
+
+    /**
+     * Ensures there is room for the next record, taking a snapshot if the
+     * journal is full. This is called before any balance changes, so a failed
+     * snapshot leaves the account unchanged. Must be called while holding the
+     * journal lock.
+     */
+    private void reserve() {
+        ensureOpen();
+        if (position + RECORD > journal.capacity()) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Appends the current balance of the account to the space made available
+     * by {@link #reserve()}. Must be called while holding the journal lock.
+     */
+    private void append(JournaledAccount account) {
+        int balance = account.getBalance();
+        journal.putInt(position, epoch);
+        journal.putInt(position + 4, account.id);
+        journal.putInt(position + 8, balance);
+        journal.putInt(position + 12, checksum(epoch, account.id, balance));
+        position += RECORD;
+        appended++;
+    }
+
+    private static int checksum(int epoch, int id, int balance) {
+        int hash = MAGIC;
+        hash = 31 * hash + epoch;
+        hash = 31 * hash + id;
+        hash = 31 * hash + balance;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Makes renames and new files in the directory durable. This is best
+     * effort, since some platforms (such as Windows) cannot open a directory.
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * An {@link Account} whose changes are appended to the enclosing journal.
+     * Rejected withdrawals throw before the balance changes and are therefore
+     * never journaled.
+     */
+    private final class JournaledAccount extends Account {
+
+        private final int id;
+
+        private JournaledAccount(int id, int balance) {
+            super(balance);
+            this.id = id;
+        }
+
+        @Override
+        public void setBalance(int balance) {
+            synchronized (AccountJournal.this) {
+                reserve();
+                super.setBalance(balance);
+                append(this);
+            }
+        }
+
+        @Override
+        public void deposit(int amount) {
+            synchronized (AccountJournal.this) {
+                reserve();
+                super.deposit(amount);
+                append(this);
+            }
+        }
+
+        @Override
+        public int withdraw(int amount) {
+            synchronized (AccountJournal.this) {
+                reserve();
+                int result = super.withdraw(amount);
+                append(this);
+                return result;
+            }
+        }
+
+    }
+
+}
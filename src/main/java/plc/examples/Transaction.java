@@ -0,0 +1,93 @@
+package plc.examples;
+
+import java.util.Objects;
+
+/**
+ * A single deposit, withdrawal, or transfer against {@link Account}s, as
+ * processed in batches by {@link TransferProcessor}.
+ */
+public final class Transaction {
+
+    public enum Type {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER
+    }
+
+    private final Type type;
+    private final Account source;
+    private final Account target;
+    private final int amount;
+
+    private Transaction(Type type, Account source, Account target, int amount) {
+        this.type = type;
+        this.source = source;
+        this.target = target;
+        this.amount = amount;
+    }
+
+    public static Transaction deposit(Account account, int amount) {
+        return new Transaction(Type.DEPOSIT, Objects.requireNonNull(account, "account"), null, amount);
+    }
+
+    public static Transaction withdraw(Account account, int amount) {
+        return new Transaction(Type.WITHDRAW, Objects.requireNonNull(account, "account"), null, amount);
+    }
+
+    /**
+     * Withdraws from source and deposits into target, so a negative amount is
+     * rejected by {@link Account#withdraw} before target is modified.
+     */
+    public static Transaction transfer(Account source, Account target, int amount) {
+        return new Transaction(Type.TRANSFER, Objects.requireNonNull(source, "source"),
+                Objects.requireNonNull(target, "target"), amount);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Account getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the receiving account of a transfer, or {@code null} otherwise.
+     */
+    public Account getTarget() {
+        return target;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Applies this transaction, propagating any {@link NumberFormatException}
+     * thrown by {@link Account#withdraw}.
+     */
+    public void apply() {
+        switch (type) {
+            case DEPOSIT:
+                source.deposit(amount);
+                break;
+            case WITHDRAW:
+                source.withdraw(amount);
+                break;
+            case TRANSFER:
+                target.deposit(source.withdraw(amount));
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Transaction{" +
+                "type=" + type +
+                ", source=" + source +
+                ", target=" + target +
+                ", amount=" + amount +
+                '}';
+    }
+
+}
@@ -0,0 +1,162 @@
+package plc.examples;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Applies a batch of deposits, withdrawals and transfers to {@link Account}s.
+ *
+ * Transactions are partitioned by the accounts they touch: two transactions
+ * share a partition whenever they are linked (directly or through transfers)
+ * by a common account. Partitions never share an account, so they run in
+ * parallel on a {@link ForkJoinPool}, while the transactions within a
+ * partition are applied sequentially in their original order. As such, the
+ * final balances and the rejected transactions are exactly those produced by
+ * applying the whole batch sequentially on one thread.
+ *
+ * Accounts are identified by reference, not {@link Account#equals}, since two
+ * distinct accounts with the same balance are still different accounts.
+ */
+public final class TransferProcessor {
+
+    /**
+     * Number of transactions below which a task stops splitting its partitions
+     * into subtasks and applies them directly.
+     */
+    private static final int THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+
+    public TransferProcessor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TransferProcessor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Applies all transactions and returns the rejected ones, keyed by their
+     * index in the batch. A transaction is rejected when {@link Account#withdraw}
+     * throws a {@link NumberFormatException}, in which case it has no effect.
+     */
+    public SortedMap<Integer, NumberFormatException> process(List<Transaction> transactions) {
+        Transaction[] batch = transactions.toArray(new Transaction[0]);
+        int[][] partitions = partition(batch);
+        Task task = new Task(batch, partitions, 0, partitions.length);
+        pool.invoke(task);
+        return task.rejected;
+    }
+
+    /**
+     * Groups transaction indices by connected accounts using a union-find over
+     * the accounts, keeping each group in batch order.
+     */
+    private static int[][] partition(Transaction[] batch) {
+        Map<Account, Integer> ids = new IdentityHashMap<>();
+        int[] source = new int[batch.length];
+        int[] target = new int[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            source[i] = id(ids, batch[i].getSource());
+            target[i] = batch[i].getTarget() != null ? id(ids, batch[i].getTarget()) : source[i];
+        }
+        int[] parent = new int[ids.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < batch.length; i++) {
+            int a = find(parent, source[i]);
+            int b = find(parent, target[i]);
+            if (a != b) {
+                parent[Math.max(a, b)] = Math.min(a, b);
+            }
+        }
+        int[] group = new int[parent.length];
+        int[] sizes = new int[parent.length];
+        int groups = 0;
+        for (int i = 0; i < parent.length; i++) {
+            group[i] = find(parent, i) == i ? groups++ : -1;
+        }
+        for (int i = 0; i < batch.length; i++) {
+            sizes[group[find(parent, source[i])]]++;
+        }
+        int[][] partitions = new int[groups][];
+        for (int i = 0; i < groups; i++) {
+            partitions[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int i = 0; i < batch.length; i++) {
+            int g = group[find(parent, source[i])];
+            partitions[g][sizes[g]++] = i;
+        }
+        return partitions;
+    }
+
+    private static int id(Map<Account, Integer> ids, Account account) {
+        Integer id = ids.get(account);
+        if (id == null) {
+            id = ids.size();
+            ids.put(account, id);
+        }
+        return id;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static final class Task extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Transaction[] batch;
+        private final int[][] partitions;
+        private final int start;
+        private final int end;
+        private final SortedMap<Integer, NumberFormatException> rejected = new TreeMap<>();
+
+        private Task(Transaction[] batch, int[][] partitions, int start, int end) {
+            this.batch = batch;
+            this.partitions = partitions;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            int size = 0;
+            for (int i = start; i < end && size < THRESHOLD; i++) {
+                size += partitions[i].length;
+            }
+            if (end - start > 1 && size >= THRESHOLD) {
+                int middle = (start + end) >>> 1;
+                Task left = new Task(batch, partitions, start, middle);
+                Task right = new Task(batch, partitions, middle, end);
+                invokeAll(left, right);
+                rejected.putAll(left.rejected);
+                rejected.putAll(right.rejected);
+            } else {
+                for (int i = start; i < end; i++) {
+                    for (int index : partitions[i]) {
+                        try {
+                            batch[index].apply();
+                        } catch (NumberFormatException e) {
+                            rejected.put(index, e);
+                        }
+                    }
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,239 @@
+package plc.examples;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Contains JUnit tests for {@link AccountJournal}, reopening the journal to
+ * check that recovered balances match those written before.
+ */
+public class AccountJournalTests {
+
+    @Test
+    void testRecoverJournal(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Account account = journal.create(25);
+            account.deposit(100);
+            account.withdraw(50);
+            journal.create(-10).setBalance(5);
+        }
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Assertions.assertEquals(2, journal.size());
+            Assertions.assertEquals(new Account(75), journal.get(0));
+            Assertions.assertEquals(new Account(5), journal.get(1));
+        }
+    }
+
+    @Test
+    void testRecoverSnapshotAndTail(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            journal.create(100).deposit(50);
+            journal.snapshot();
+            journal.get(0).withdraw(30);
+            journal.create(10);
+        }
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Assertions.assertEquals(2, journal.size());
+            Assertions.assertEquals(new Account(120), journal.get(0));
+            Assertions.assertEquals(new Account(10), journal.get(1));
+        }
+    }
+
+    @Test
+    void testJournalFull(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory, 8)) {
+            for (int i = 0; i < 10; i++) {
+                journal.create(i);
+            }
+            for (int i = 0; i < 100; i++) {
+                journal.get(i % 10).deposit(i);
+            }
+        }
+        try (AccountJournal journal = AccountJournal.open(directory, 8)) {
+            Assertions.assertEquals(10, journal.size());
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals(new Account(i + 450 + 10 * i), journal.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testNegativeWithdrawNotJournaled(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Account account = journal.create(100);
+            Assertions.assertThrows(NumberFormatException.class, () -> account.withdraw(-50));
+        }
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Assertions.assertEquals(new Account(100), journal.get(0));
+        }
+    }
+
+    @Test
+    void testFailedSnapshotLeavesBalance(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory, 2)) {
+            Account account = journal.create(100);
+            account.deposit(10);
+            Files.createDirectories(directory.resolve("accounts.snapshot.tmp").resolve("blocked"));
+            Assertions.assertThrows(UncheckedIOException.class, () -> account.deposit(10));
+            Assertions.assertThrows(UncheckedIOException.class, () -> account.withdraw(10));
+            Assertions.assertEquals(new Account(110), account);
+        }
+    }
+
+    @Test
+    void testClosed(@TempDir Path directory) throws IOException {
+        AccountJournal journal = AccountJournal.open(directory);
+        Account account = journal.create(100);
+        journal.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> account.deposit(10));
+        Assertions.assertThrows(IllegalStateException.class, () -> journal.create(10));
+        Assertions.assertThrows(IllegalStateException.class, journal::commit);
+        Assertions.assertThrows(IllegalStateException.class, journal::snapshot);
+        Assertions.assertEquals(new Account(100), account);
+    }
+
+    @Test
+    void testCorruptRecord(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Account account = journal.create(100);
+            account.deposit(1);
+            account.deposit(1);
+            journal.commit();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("accounts.journal").toFile(), "rw")) {
+            file.seek(16 + 8);
+            file.writeInt(1000);
+        }
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Assertions.assertEquals(new Account(100), journal.get(0));
+        }
+    }
+
+    @Test
+    void testTornRecord(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Account account = journal.create(100);
+            account.deposit(1);
+            account.deposit(1);
+            journal.commit();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("accounts.journal").toFile(), "rw")) {
+            file.seek(2 * 16 + 8);
+            file.writeLong(0);
+        }
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Assertions.assertEquals(new Account(101), journal.get(0));
+        }
+    }
+
+    @Test
+    void testStaleEpochRecords(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Account account = journal.create(0);
+            for (int i = 0; i < 5; i++) {
+                account.deposit(1);
+            }
+            journal.snapshot();
+            account.deposit(10);
+        }
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            Assertions.assertEquals(1, journal.size());
+            Assertions.assertEquals(new Account(15), journal.get(0));
+        }
+    }
+
+    @Test
+    void testInvalidSnapshot(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            journal.create(100);
+        }
+        Files.write(directory.resolve("accounts.snapshot"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        Assertions.assertThrows(IOException.class, () -> AccountJournal.open(directory));
+        for (int count : new int[] {-1, Integer.MAX_VALUE}) {
+            ByteBuffer buffer = ByteBuffer.allocate(16).putInt(0x41434354).putInt(2).putInt(count).putInt(100);
+            Files.write(directory.resolve("accounts.snapshot"), buffer.array());
+            Assertions.assertThrows(IOException.class, () -> AccountJournal.open(directory));
+        }
+    }
+
+    @Test
+    void testReopenSmallerCapacity(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory, 64)) {
+            Account account = journal.create(0);
+            for (int i = 0; i < 40; i++) {
+                account.deposit(1);
+            }
+            journal.commit();
+        }
+        try (AccountJournal journal = AccountJournal.open(directory, 8)) {
+            Assertions.assertEquals(new Account(40), journal.get(0));
+            journal.get(0).deposit(1);
+        }
+        try (AccountJournal journal = AccountJournal.open(directory, 8)) {
+            Assertions.assertEquals(new Account(41), journal.get(0));
+        }
+    }
+
+    @Test
+    void testTruncatedSnapshot(@TempDir Path directory) throws IOException {
+        try (AccountJournal journal = AccountJournal.open(directory)) {
+            journal.create(100);
+            journal.create(200);
+        }
+        Path snapshot = directory.resolve("accounts.snapshot");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 2));
+        Assertions.assertThrows(IOException.class, () -> AccountJournal.open(directory));
+    }
+
+    @Test
+    void testConcurrentCommit(@TempDir Path directory) throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (AccountJournal journal = AccountJournal.open(directory, 64)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int start = t;
+                futures.add(executor.submit(() -> {
+                    Account account = journal.create(start);
+                    for (int i = 0; i < 1000; i++) {
+                        account.deposit(1);
+                        if (i % 100 == 0) {
+                            journal.commit();
+                        }
+                    }
+                    journal.commit();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try (AccountJournal journal = AccountJournal.open(directory, 64)) {
+            Assertions.assertEquals(threads, journal.size());
+            int total = 0;
+            for (int i = 0; i < threads; i++) {
+                total += journal.get(i).getBalance();
+            }
+            Assertions.assertEquals(threads * 1000 + threads * (threads - 1) / 2, total);
+        }
+    }
+
+}
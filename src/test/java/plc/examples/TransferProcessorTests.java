@@ -0,0 +1,97 @@
+package plc.examples;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+
+/**
+ * Contains JUnit tests for {@link TransferProcessor}, comparing the results of
+ * a batch against applying the same transactions sequentially.
+ */
+public class TransferProcessorTests {
+
+    @Test
+    void testTransfer() {
+        Account source = new Account(100);
+        Account target = new Account(0);
+        SortedMap<Integer, NumberFormatException> rejected = new TransferProcessor().process(Arrays.asList(
+                Transaction.transfer(source, target, 40),
+                Transaction.deposit(target, 10)
+        ));
+        Assertions.assertEquals(new Account(60), source);
+        Assertions.assertEquals(new Account(50), target);
+        Assertions.assertTrue(rejected.isEmpty());
+    }
+
+    @Test
+    void testNegativeRejected() {
+        Account source = new Account(100);
+        Account target = new Account(0);
+        SortedMap<Integer, NumberFormatException> rejected = new TransferProcessor().process(Arrays.asList(
+                Transaction.withdraw(source, -50),
+                Transaction.transfer(source, target, -10),
+                Transaction.deposit(source, -5)
+        ));
+        Assertions.assertEquals(new Account(95), source);
+        Assertions.assertEquals(new Account(0), target);
+        Assertions.assertEquals(Arrays.asList(0, 1), new ArrayList<>(rejected.keySet()));
+    }
+
+    @Test
+    void testNullAccount() {
+        Account account = new Account(100);
+        Assertions.assertThrows(NullPointerException.class, () -> Transaction.deposit(null, 10));
+        Assertions.assertThrows(NullPointerException.class, () -> Transaction.withdraw(null, 10));
+        Assertions.assertThrows(NullPointerException.class, () -> Transaction.transfer(null, account, 10));
+        Assertions.assertThrows(NullPointerException.class, () -> Transaction.transfer(account, null, 10));
+        Assertions.assertEquals(new Account(100), account);
+    }
+
+    @Test
+    void testSequentialEquivalence() {
+        Random random = new Random(26);
+        Account[] batch = new Account[500];
+        Account[] sequential = new Account[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new Account(i);
+            sequential[i] = new Account(i);
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            int a = random.nextInt(batch.length);
+            int b = random.nextInt(batch.length);
+            int amount = random.nextInt(200) - 20;
+            switch (random.nextInt(3)) {
+                case 0:
+                    transactions.add(Transaction.deposit(batch[a], amount));
+                    expected.add(Transaction.deposit(sequential[a], amount));
+                    break;
+                case 1:
+                    transactions.add(Transaction.withdraw(batch[a], amount));
+                    expected.add(Transaction.withdraw(sequential[a], amount));
+                    break;
+                default:
+                    transactions.add(Transaction.transfer(batch[a], batch[b], amount));
+                    expected.add(Transaction.transfer(sequential[a], sequential[b], amount));
+            }
+        }
+        List<Integer> rejected = new ArrayList<>();
+        for (int i = 0; i < expected.size(); i++) {
+            try {
+                expected.get(i).apply();
+            } catch (NumberFormatException e) {
+                rejected.add(i);
+            }
+        }
+        SortedMap<Integer, NumberFormatException> actual = new TransferProcessor().process(transactions);
+        Assertions.assertArrayEquals(sequential, batch);
+        Assertions.assertEquals(rejected, new ArrayList<>(actual.keySet()));
+    }
+
+}